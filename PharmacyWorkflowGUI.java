@@ -5,16 +5,173 @@
 */
 
 import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
 import java.awt.*;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 
+// Work-queue table over one order-book snapshot; JTable only asks for the rows it is painting
+class OrderTableModel extends AbstractTableModel {
+    enum View { WORK_QUEUE, ALL, DUE_TODAY, OVERDUE, AS_OF_DAY }
+
+    private static final String[] COLUMNS = {"Order ID", "Priority", "Received", "Due", "Status", "Notes"};
+
+    private List<Order> rows = new ArrayList<>();
+    private View view = View.WORK_QUEUE;
+    private int day = 0;
+    private long version = -1;
+
+    View getView() { return view; }
+    long getVersion() { return version; }
+    Order getOrderAt(int row) { return rows.get(row); }
+
+    // Show the snapshot in the given view; only rows whose order changed get repainted
+    void show(OrderSnapshot snap, View newView, int newDay) {
+        List<Order> old = rows;
+        List<Order> next = rowsFor(snap, newView, newDay);
+        boolean sameLayout = (newView == view && newDay == day);
+
+        rows = next;
+        view = newView;
+        day = newDay;
+        version = snap.getVersion();
+
+        // Different view or day: every status can change
+        if (!sameLayout) {
+            fireTableDataChanged();
+            return;
+        }
+
+        // Orders never change in place, so a row is unchanged exactly when it holds the same object
+        int k = 0;
+        while (k < old.size() && k < next.size() && old.get(k) == next.get(k)) k++;
+
+        // Common case: one order added somewhere in the sorted list
+        if (next.size() == old.size() + 1 && old.subList(k, old.size()).equals(next.subList(k + 1, next.size()))) {
+            fireTableRowsInserted(k, k);
+            return;
+        }
+
+        int common = Math.min(old.size(), next.size());
+        for (int i = k; i < common; ) {
+            if (old.get(i) == next.get(i)) {
+                i++;
+                continue;
+            }
+            int first = i;
+            while (i < common && old.get(i) != next.get(i)) i++;
+            fireTableRowsUpdated(first, i - 1);
+        }
+        if (next.size() > old.size()) fireTableRowsInserted(old.size(), next.size() - 1);
+        else if (next.size() < old.size()) fireTableRowsDeleted(next.size(), old.size() - 1);
+    }
+
+    private static List<Order> rowsFor(OrderSnapshot snap, View view, int day) {
+        return switch (view) {
+            case ALL, AS_OF_DAY -> snap.getAllSorted();
+            case DUE_TODAY -> snap.dueToday(day);
+            case OVERDUE -> snap.overdue(day);
+            case WORK_QUEUE -> workQueue(snap, day);
+        };
+    }
+
+    // Due today (STAT before URGENT), then on track, then overdue
+    private static List<Order> workQueue(OrderSnapshot snap, int day) {
+        List<Order> dueToday = new ArrayList<>();
+        List<Order> onTrack = new ArrayList<>();
+        List<Order> overdue = new ArrayList<>();
+
+        for (Order o : snap.getAllSorted()) {
+            switch (o.getStatus(day)) {
+                case "DUE_TODAY" -> dueToday.add(o);
+                case "OVERDUE" -> overdue.add(o);
+                default -> onTrack.add(o);
+            }
+        }
+        dueToday.sort(Comparator.comparingInt(o -> o.getPriority().rank()));
+
+        List<Order> result = new ArrayList<>(dueToday);
+        result.addAll(onTrack);
+        result.addAll(overdue);
+        return result;
+    }
+
+    @Override
+    public int getRowCount() { return rows.size(); }
+
+    @Override
+    public int getColumnCount() { return COLUMNS.length; }
+
+    @Override
+    public String getColumnName(int col) { return COLUMNS[col]; }
+
+    @Override
+    public Class<?> getColumnClass(int col) {
+        return (col == 2 || col == 3) ? Integer.class : Object.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int col) {
+        Order o = rows.get(row);
+        return switch (col) {
+            case 0 -> o.getOrderId();
+            case 1 -> o.getPriority();
+            case 2 -> o.getReceivedDay();
+            case 3 -> o.getDueDay();
+            case 4 -> o.getStatus(day);
+            default -> o.getNotes().isEmpty() ? "-" : o.getNotes();
+        };
+    }
+}
+
+// Activity log that keeps only the newest lines, so memory and repaint cost stay flat all shift
+class RingLog extends AbstractListModel<String> {
+    private final String[] lines;
+    private int start = 0; // index of the oldest line
+    private int size = 0;
+
+    RingLog(int capacity) {
+        lines = new String[capacity];
+    }
+
+    void add(String line) {
+        if (size == lines.length) {
+            start = (start + 1) % lines.length;
+            size--;
+            fireIntervalRemoved(this, 0, 0);
+        }
+        lines[(start + size) % lines.length] = line;
+        size++;
+        fireIntervalAdded(this, size - 1, size - 1);
+    }
+
+    void clear() {
+        if (size == 0) return;
+        int last = size - 1;
+        Arrays.fill(lines, null);
+        start = 0;
+        size = 0;
+        fireIntervalRemoved(this, 0, last);
+    }
+
+    @Override
+    public int getSize() { return size; }
+
+    @Override
+    public String getElementAt(int index) { return lines[(start + index) % lines.length]; }
+}
+
 public class PharmacyWorkflowGUI {
 
+    private static final int LOG_LINES = 500;       // activity lines kept
+    private static final int REFRESH_MS = 1000;     // how often to check for changes from the other front-end
+
     // Backend (reuses your Phase 1 classes)
-    private final OrderManager manager = new OrderManager();
+    private final OrderManager manager = OrderManager.attachShared(SharedOrderStore.DEFAULT_FILE);
     private final ScriptGenerator scripts = new ScriptGenerator();
 
     // "Time" simulation
@@ -26,7 +183,15 @@ public class PharmacyWorkflowGUI {
     private JTextField orderIdField;
     private JComboBox<Priority> priorityBox;
     private JTextField notesField;
-    private JTextArea outputArea;
+    private JLabel viewLabel;
+    private JList<String> logList;
+    private JTextArea scriptArea;
+    private Timer refreshTimer;
+
+    private final OrderTableModel queueModel = new OrderTableModel();
+    private final RingLog log = new RingLog(LOG_LINES);
+    private OrderTableModel.View liveView = OrderTableModel.View.WORK_QUEUE;
+    private PriorityRules shownRules = PriorityRules.current(); // rules the table and priority list were built with
 
     public static void main(String[] args) {
         SwingUtilities.invokeLater(() -> new PharmacyWorkflowGUI().buildAndShow());
@@ -46,7 +211,7 @@ public class PharmacyWorkflowGUI {
         dayLabel = new JLabel("Current Day: " + currentDay);
 
         orderIdField = new JTextField(12);
-        priorityBox = new JComboBox<>(Priority.values());
+        priorityBox = new JComboBox<>(Priority.choosable());
         notesField = new JTextField(30);
 
         gbc.gridx = 0; gbc.gridy = 0; gbc.gridwidth = 1;
@@ -82,7 +247,10 @@ public class PharmacyWorkflowGUI {
         JButton scriptsBtn = new JButton("Generate Scripts");
         JButton advanceDayBtn = new JButton("Advance Day (+1)");
         JButton saveReportBtn = new JButton("Save Report");
-        JButton clearBtn = new JButton("Clear Output");
+        JButton asOfDayBtn = new JButton("Session View As Of Day...");
+        JButton undoBtn = new JButton("Undo Re-triage");
+        JButton reloadRulesBtn = new JButton("Reload Rules");
+        JButton clearBtn = new JButton("Clear Log");
 
         buttons.add(addOrUpdateBtn);
         buttons.add(updateBtn);
@@ -93,13 +261,48 @@ public class PharmacyWorkflowGUI {
         buttons.add(scriptsBtn);
         buttons.add(advanceDayBtn);
         buttons.add(saveReportBtn);
+        buttons.add(asOfDayBtn);
+        buttons.add(undoBtn);
+        buttons.add(reloadRulesBtn);
         buttons.add(clearBtn);
 
-        // Output area 
-        outputArea = new JTextArea();
-        outputArea.setEditable(false);
-        outputArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 13));
-        JScrollPane scroll = new JScrollPane(outputArea);
+        // Work queue table (live view of the order book)
+        viewLabel = new JLabel();
+        JTable queueTable = new JTable(queueModel);
+        queueTable.setFillsViewportHeight(true);
+        queueTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        queueTable.getColumnModel().getColumn(5).setPreferredWidth(300);
+        queueTable.getSelectionModel().addListSelectionListener(e -> {
+            int row = queueTable.getSelectedRow();
+            if (e.getValueIsAdjusting() || row < 0) return;
+            // small UX: clicking a row fills in its ID and priority
+            Order o = queueModel.getOrderAt(row);
+            orderIdField.setText(o.getOrderId());
+            priorityBox.setSelectedItem(o.getPriority());
+        });
+
+        JPanel queuePanel = new JPanel(new BorderLayout());
+        queuePanel.add(viewLabel, BorderLayout.NORTH);
+        queuePanel.add(new JScrollPane(queueTable), BorderLayout.CENTER);
+
+        // Activity log (bounded)
+        Font mono = new Font(Font.MONOSPACED, Font.PLAIN, 13);
+        logList = new JList<>(log);
+        logList.setFont(mono);
+        // fixed row height (width still follows the text, so long lines scroll sideways)
+        logList.setFixedCellHeight(logList.getFontMetrics(mono).getHeight() + 2);
+
+        // Scripts for the latest order; plain text so it can be selected and copied into the handoff
+        scriptArea = new JTextArea(3, 0);
+        scriptArea.setEditable(false);
+        scriptArea.setFont(mono);
+
+        JPanel bottom = new JPanel(new BorderLayout());
+        bottom.add(new JScrollPane(scriptArea), BorderLayout.NORTH);
+        bottom.add(new JScrollPane(logList), BorderLayout.CENTER);
+
+        JSplitPane split = new JSplitPane(JSplitPane.VERTICAL_SPLIT, queuePanel, bottom);
+        split.setResizeWeight(0.7);
 
         // Layout
         JPanel north = new JPanel(new BorderLayout());
@@ -108,19 +311,26 @@ public class PharmacyWorkflowGUI {
 
         frame.getContentPane().setLayout(new BorderLayout());
         frame.getContentPane().add(north, BorderLayout.NORTH);
-        frame.getContentPane().add(scroll, BorderLayout.CENTER);
+        frame.getContentPane().add(split, BorderLayout.CENTER);
 
         // Button actions 
         addOrUpdateBtn.addActionListener(e -> handleAddOrUpdate());
         updateBtn.addActionListener(e -> handleExplicitUpdate());
-        workQueueBtn.addActionListener(e -> showWorkQueue());
-        viewAllBtn.addActionListener(e -> showAllSorted());
-        dueTodayBtn.addActionListener(e -> showDueToday());
-        overdueBtn.addActionListener(e -> showOverdue());
+        workQueueBtn.addActionListener(e -> showView(OrderTableModel.View.WORK_QUEUE));
+        viewAllBtn.addActionListener(e -> showView(OrderTableModel.View.ALL));
+        dueTodayBtn.addActionListener(e -> showView(OrderTableModel.View.DUE_TODAY));
+        overdueBtn.addActionListener(e -> showView(OrderTableModel.View.OVERDUE));
         scriptsBtn.addActionListener(e -> showScriptsForId());
         advanceDayBtn.addActionListener(e -> advanceDay());
         saveReportBtn.addActionListener(e -> saveReport());
-        clearBtn.addActionListener(e -> outputArea.setText(""));
+        asOfDayBtn.addActionListener(e -> showAsOfDay());
+        undoBtn.addActionListener(e -> undoRetriage());
+        reloadRulesBtn.addActionListener(e -> reloadRules());
+        clearBtn.addActionListener(e -> log.clear());
+
+        // Orders changed from the console show up without pressing anything
+        refreshTimer = new Timer(REFRESH_MS, e -> pollSharedFile());
+        refreshTimer.start();
 
         // Show
         frame.setLocationRelativeTo(null);
@@ -128,7 +338,24 @@ public class PharmacyWorkflowGUI {
 
         // Initial message
         appendLine("GUI ready. Add an order to begin.");
-        appendLine("Rules: STAT due today & first; URGENT due today (overnight); ROUTINE due in 2 days.");
+        try {
+            PriorityRules rules = PriorityRules.loadIfPresent(PriorityRules.DEFAULT_FILE);
+            if (rules != null) {
+                // Saved orders may predate edits to the rule file
+                int moved = manager.applyRules(rules, currentDay);
+                updatePriorityChoices();
+                appendLine("Priority rules loaded from: " + PriorityRules.DEFAULT_FILE);
+                if (moved > 0) appendLine("Due days re-evaluated — " + moved + " order(s) changed.");
+            }
+        } catch (Exception ex) {
+            appendLine("Could not load " + PriorityRules.DEFAULT_FILE + " (" + ex.getMessage() + ") — using built-in rules.");
+        }
+        appendLine("Rules: " + PriorityRules.current().describe() + ".");
+        appendLine(manager.isShared()
+                ? "Using shared order file: " + SharedOrderStore.DEFAULT_FILE
+                : "Shared order file unavailable (" + manager.sharedProblem()
+                        + ") — orders are kept in this session only.");
+        showView(liveView);
     }
 
     // Actions
@@ -142,17 +369,17 @@ public class PharmacyWorkflowGUI {
         Priority p = (Priority) priorityBox.getSelectedItem();
         String notes = notesField.getText();
 
-        boolean wasUpdated = manager.addOrUpdate(id, p, notes, currentDay);
-
-        if (wasUpdated) {
-            appendLine("UPDATED existing order: " + id);
-        } else {
-            appendLine("ADDED new order: " + id);
+        boolean wasUpdated;
+        try {
+            wasUpdated = manager.addOrUpdate(id, p, notes, currentDay);
+        } catch (IllegalArgumentException | IllegalStateException ex) {
+            showError("Order not saved: " + ex.getMessage());
+            return;
         }
 
         Order o = manager.findOrder(id);
-        appendLine(o.toDisplayString(currentDay));
-        appendLine("");
+        appendLine((wasUpdated ? "UPDATED: " : "ADDED: ") + o.toDisplayString(currentDay));
+        refreshQueue();
 
         // small UX: keep ID but clear notes
         notesField.setText("");
@@ -174,124 +401,163 @@ public class PharmacyWorkflowGUI {
         Priority p = (Priority) priorityBox.getSelectedItem();
         String notes = notesField.getText();
 
-        // explicit update uses the Order.update method directly when orders status changes
-        existing.update(p, notes, currentDay);
+        // explicit update goes through the manager so the shared order file sees it too
+        try {
+            manager.update(id, p, notes, currentDay);
+        } catch (IllegalArgumentException | IllegalStateException ex) {
+            showError("Order not saved: " + ex.getMessage());
+            return;
+        }
 
-        appendLine("EXPLICIT UPDATE applied to: " + id);
-        appendLine(existing.toDisplayString(currentDay));
-        appendLine("");
+        appendLine("EXPLICIT UPDATE: " + manager.findOrder(id).toDisplayString(currentDay));
+        refreshQueue();
 
         notesField.setText("");
     }
 
-    private void showAllSorted() {
-        List<Order> list = manager.getAllSorted();
-        appendLine("--- ALL ORDERS (sorted by due day, then priority) ---");
-        if (list.isEmpty()) {
-            appendLine("No orders.");
-        } else {
-            for (Order o : list) appendLine(o.toDisplayString(currentDay));
-        }
-        appendLine("");
+    // Point the table at the live queue in the given view
+    private void showView(OrderTableModel.View view) {
+        liveView = view;
+        queueModel.show(manager.snapshot(), view, currentDay);
+        viewLabel.setText(switch (view) {
+            case WORK_QUEUE -> " WORK QUEUE (due today → on track → overdue) — Day " + currentDay;
+            case DUE_TODAY -> " DUE TODAY — Day " + currentDay;
+            case OVERDUE -> " OVERDUE — Day " + currentDay;
+            default -> " ALL ORDERS (sorted by due day, then priority) — Day " + currentDay;
+        });
     }
 
-    private void showDueToday() {
-        List<Order> list = manager.dueToday(currentDay);
-        appendLine("--- DUE TODAY ---");
-        if (list.isEmpty()) {
-            appendLine("None.");
-        } else {
-            for (Order o : list) appendLine(o.toDisplayString(currentDay));
+    // Repaint only when the order book has a new version or the rules changed (cheap enough to poll)
+    private void refreshQueue() {
+        OrderSnapshot snap = manager.snapshot(); // also reloads rules changed at the other bench
+
+        // A rank-only change moves rows without making a new version
+        if (PriorityRules.current() != shownRules) {
+            updatePriorityChoices();
+            appendLine("Rules reloaded at the other bench: " + PriorityRules.current().describe() + ".");
+            if (queueModel.getView() != OrderTableModel.View.AS_OF_DAY) showView(liveView);
+            return;
+        }
+
+        if (queueModel.getView() == OrderTableModel.View.AS_OF_DAY) return;
+        if (snap.getVersion() != queueModel.getVersion()) {
+            queueModel.show(snap, liveView, currentDay);
         }
-        appendLine("");
     }
 
-    private void showOverdue() {
-        List<Order> list = manager.overdue(currentDay);
-        appendLine("--- OVERDUE ---");
-        if (list.isEmpty()) {
-            appendLine("None.");
-        } else {
-            for (Order o : list) appendLine(o.toDisplayString(currentDay));
+    // Timer tick; if the shared file can't be read any more, say so once instead of failing every second
+    private void pollSharedFile() {
+        try {
+            refreshQueue();
+        } catch (UncheckedIOException ex) {
+            refreshTimer.stop();
+            appendLine("Stopped checking for changes from the other bench: " + ex.getCause().getMessage());
         }
-        appendLine("");
     }
 
-    private void showWorkQueue() {
-        List<Order> all = manager.getAllSorted();
-        appendLine("--- WORK QUEUE ---");
-        if (all.isEmpty()) {
-            appendLine("No orders.");
-            appendLine("");
+    private void showScriptsForId() {
+        String id = orderIdField.getText().trim();
+        if (id.isEmpty()) {
+            showError("Enter an Order ID to generate scripts.");
             return;
         }
 
-        List<Order> dueToday = new ArrayList<>();
-        List<Order> onTrack = new ArrayList<>();
-        List<Order> overdue = new ArrayList<>();
-
-        for (Order o : all) {
-            String status = o.getStatus(currentDay);
-            switch (status) {
-                case "DUE_TODAY" -> dueToday.add(o);
-                case "OVERDUE" -> overdue.add(o);
-                default -> onTrack.add(o);
-            }
+        Order o = manager.findOrder(id);
+        if (o == null) {
+            showError("Order not found.");
+            return;
         }
 
-        // Ensure STAT then URGENT for dueToday
-        dueToday.sort(Comparator.comparingInt(o -> o.getPriority().rank()));
+        // Replaced each time, so it never grows
+        scriptArea.setText(scripts.handoffScript(o) + "\n"
+                + scripts.compoundingScript(o) + "\n"
+                + scripts.deliveryScript(o));
+        scriptArea.setCaretPosition(0);
+        appendLine("Scripts generated for " + o.getOrderId() + ".");
+    }
 
-        appendLine("[DUE TODAY]");
-        if (dueToday.isEmpty()) appendLine("None.");
-        else for (Order o : dueToday) appendLine(o.toDisplayString(currentDay));
+    private void showAsOfDay() {
+        String input = JOptionPane.showInputDialog(frame,
+                "Show the queue as this session saw it on which day?", currentDay);
+        if (input == null) return;
 
-        appendLine("");
-        appendLine("[ON TRACK]");
-        if (onTrack.isEmpty()) appendLine("None.");
-        else for (Order o : onTrack) appendLine(o.toDisplayString(currentDay));
+        int day;
+        try {
+            day = Integer.parseInt(input.trim());
+        } catch (NumberFormatException ex) {
+            showError("Invalid day.");
+            return;
+        }
 
-        appendLine("");
-        appendLine("[OVERDUE]");
-        if (overdue.isEmpty()) appendLine("None.");
-        else for (Order o : overdue) appendLine(o.toDisplayString(currentDay));
+        OrderSnapshot snap = manager.snapshotAt(day);
+        if (snap == null) {
+            showError("No saved version that old.");
+            return;
+        }
 
-        appendLine("");
+        // Frozen until a view button is pressed
+        queueModel.show(snap, OrderTableModel.View.AS_OF_DAY, day);
+        viewLabel.setText(" QUEUE AS SEEN BY THIS SESSION ON DAY " + day + " (version " + snap.getVersion()
+                + ") — press a View button to return to the live queue");
     }
 
-    private void showScriptsForId() {
-        String id = orderIdField.getText().trim();
-        if (id.isEmpty()) {
-            showError("Enter an Order ID to generate scripts.");
+    private void undoRetriage() {
+        Order restored;
+        try {
+            restored = manager.undoLastRetriage(currentDay);
+        } catch (IllegalStateException ex) {
+            showError("Cannot undo: " + ex.getMessage());
             return;
         }
 
-        Order o = manager.findOrder(id);
-        if (o == null) {
-            showError("Order not found.");
+        if (restored == null) {
+            showError("No re-triage to undo.");
+            return;
+        }
+        appendLine("Re-triage UNDONE: " + restored.toDisplayString(currentDay));
+        refreshQueue();
+    }
+
+    private void reloadRules() {
+        int moved;
+        try {
+            // Also makes the other front-end reload the rule file
+            moved = manager.applyRules(PriorityRules.load(PriorityRules.DEFAULT_FILE), currentDay);
+        } catch (Exception ex) {
+            showError("Rules not changed: " + ex.getMessage());
             return;
         }
 
-        appendLine("--- SCRIPTS for " + o.getOrderId() + " ---");
-        appendLine(scripts.handoffScript(o));
-        appendLine(scripts.compoundingScript(o));
-        appendLine(scripts.deliveryScript(o));
-        appendLine("");
+        updatePriorityChoices();
+        appendLine("Rules reloaded: " + PriorityRules.current().describe() + ".");
+        appendLine("Due days re-evaluated — " + moved + " order(s) changed.");
+        // Full redraw: new ranks reorder rows even when no due day moved
+        showView(liveView);
+    }
+
+    // New tiers show up in the priority list right away
+    private void updatePriorityChoices() {
+        shownRules = PriorityRules.current();
+        Object selected = priorityBox.getSelectedItem();
+        priorityBox.setModel(new DefaultComboBoxModel<>(Priority.choosable()));
+        priorityBox.setSelectedItem(selected);
     }
 
     private void advanceDay() {
         currentDay++;
         dayLabel.setText("Current Day: " + currentDay);
         appendLine("Day advanced to Day " + currentDay + ".");
-        appendLine("");
+        showView(liveView);
     }
 
     private void saveReport() {
         String filename = "report_day" + currentDay + ".txt";
 
-        List<Order> all = manager.getAllSorted();
-        List<Order> dueToday = manager.dueToday(currentDay);
-        List<Order> overdue = manager.overdue(currentDay);
+        // One version for the whole report, so the totals and the list always agree
+        OrderSnapshot snap = manager.snapshot();
+        List<Order> all = snap.getAllSorted();
+        List<Order> dueToday = snap.dueToday(currentDay);
+        List<Order> overdue = snap.overdue(currentDay);
 
         StringBuilder sb = new StringBuilder();
         sb.append("=== Pharmacy Workflow Helper Report ===\n");
@@ -308,7 +574,6 @@ public class PharmacyWorkflowGUI {
         try (PrintWriter out = new PrintWriter(filename)) {
             out.print(sb.toString());
             appendLine("Report saved to: " + filename);
-            appendLine("");
         } catch (Exception ex) {
             showError("Error saving report: " + ex.getMessage());
         }
@@ -316,8 +581,8 @@ public class PharmacyWorkflowGUI {
 
     // Helpers
     private void appendLine(String s) {
-        outputArea.append(s + "\n");
-        outputArea.setCaretPosition(outputArea.getDocument().getLength());
+        log.add(s);
+        logList.ensureIndexIsVisible(log.getSize() - 1);
     }
 
     private void showError(String msg) {
@@ -4,36 +4,245 @@
     Pharmacy Workflow Helper
 */
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Scanner;       // Import libraries
 
-// Establish priority cases
-enum Priority {
-    STAT, URGENT, ROUTINE;
+// Establish priority cases (built-in tiers; the rule file can add more)
+final class Priority {
+    private static final List<Priority> TIERS = new ArrayList<>(); // index = ordinal
 
-    // Convert user input to Priority safely
+    static final Priority STAT = define("STAT");
+    static final Priority URGENT = define("URGENT");
+    static final Priority ROUTINE = define("ROUTINE");
+
+    private final String name;
+    private final int ordinal;
+
+    private Priority(String name, int ordinal) {
+        this.name = name;
+        this.ordinal = ordinal;
+    }
+
+    // Tier with this name, registering it the first time it is seen (rule file, shared order file)
+    static synchronized Priority define(String name) {
+        String key = name.trim().toUpperCase();
+        for (Priority p : TIERS) {
+            if (p.name.equals(key)) return p;
+        }
+        Priority created = new Priority(key, TIERS.size());
+        TIERS.add(created);
+        return created;
+    }
+
+    static synchronized Priority[] values() {
+        return TIERS.toArray(new Priority[0]);
+    }
+
+    // Tiers a user may pick: only the ones the current rules define
+    static Priority[] choosable() {
+        PriorityRules rules = PriorityRules.current();
+        List<Priority> result = new ArrayList<>();
+        for (Priority p : values()) {
+            if (rules.covers(p)) result.add(p);
+        }
+        return result.toArray(new Priority[0]);
+    }
+
+    // Convert user input to Priority safely (tiers known only from the shared file are rejected)
     static Priority fromString(String s) {
-        return Priority.valueOf(s.trim().toUpperCase());
+        String key = s.trim().toUpperCase();
+        for (Priority p : choosable()) {
+            if (p.name.equals(key)) return p;
+        }
+        throw new IllegalArgumentException("Unknown priority: " + s.trim());
+    }
+
+    // "STAT / URGENT / ROUTINE" for prompts
+    static String choices() {
+        StringBuilder sb = new StringBuilder();
+        for (Priority p : choosable()) {
+            if (sb.length() > 0) sb.append(" / ");
+            sb.append(p.name);
+        }
+        return sb.toString();
     }
 
+    String name() { return name; }
+    int ordinal() { return ordinal; }
+
     // Smaller number = higher priority
     int rank() {
-        return switch (this) {
-            case STAT -> 1; // Same day deliveries due first 
-            case URGENT -> 2; // End of day deliveries or overnights
-            case ROUTINE -> 3; // Due 2 days or later
-        };
+        return PriorityRules.current().rank(this);
+    }
+
+    @Override
+    public String toString() { return name; }
+}
+
+// Priority/SLA rule table, compiled into flat arrays indexed by Priority.ordinal()
+final class PriorityRules {
+    static final String DEFAULT_FILE = "priority_rules.txt";
+
+    // Same format as the rule file: NAME | rank | due offset (days) | delivery type | handoff label | due note
+    private static final String[] BUILT_IN = {
+            "STAT    | 1 | 0 | Same-day  | STAT — DO FIRST   | -",         // Same day deliveries due first
+            "URGENT  | 2 | 0 | Overnight | URGENT — EOD SHIP | overnight", // End of day deliveries or overnights
+            "ROUTINE | 3 | 2 | Standard  | ROUTINE           | -",         // Due 2 days or later
+    };
+
+    // One parsed line of the rule file
+    private record Rule(String name, int rank, int dueOffset, String shipType, String handoffLabel, String dueNote) {}
+
+    private static volatile PriorityRules current = parse(List.of(BUILT_IN));
+
+    private final boolean[] defined;
+    private final int[] rank;
+    private final int[] dueOffset;
+    private final String[] shipType;
+    private final String[] handoffLabel;
+    private final String[] dueNote;
+
+    private PriorityRules(int tiers) {
+        defined = new boolean[tiers];
+        rank = new int[tiers];
+        dueOffset = new int[tiers];
+        shipType = new String[tiers];
+        handoffLabel = new String[tiers];
+        dueNote = new String[tiers];
+    }
+
+    static PriorityRules current() {
+        return current;
+    }
+
+    static void install(PriorityRules rules) {
+        current = rules;
+    }
+
+    static PriorityRules load(String filename) throws IOException {
+        return parse(Files.readAllLines(Path.of(filename), StandardCharsets.UTF_8));
+    }
+
+    // Rules from the file if there is one (null = no file, keep the built-in rules)
+    static PriorityRules loadIfPresent(String filename) throws IOException {
+        return Files.exists(Path.of(filename)) ? load(filename) : null;
+    }
+
+    static PriorityRules parse(List<String> lines) {
+        // Check every line before registering any new tier, so a bad file changes nothing
+        List<Rule> rows = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (int n = 0; n < lines.size(); n++) {
+            String line = lines.get(n).trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            String[] f = line.split("\\|", -1);
+            if (f.length != 6) {
+                throw new IllegalArgumentException("Line " + (n + 1) + ": expected 6 fields separated by |");
+            }
+            for (int i = 0; i < f.length; i++) f[i] = f[i].trim();
+
+            String name = f[0].toUpperCase();
+            if (name.isEmpty() || name.getBytes(StandardCharsets.UTF_8).length > SharedOrderStore.PRIORITY_BYTES) {
+                throw new IllegalArgumentException("Line " + (n + 1) + ": tier name must be 1-"
+                        + SharedOrderStore.PRIORITY_BYTES + " bytes");
+            }
+            if (names.contains(name)) {
+                throw new IllegalArgumentException("Line " + (n + 1) + ": tier " + name + " is listed twice");
+            }
+            int rank;
+            int offset;
+            try {
+                rank = Integer.parseInt(f[1]);
+                offset = Integer.parseInt(f[2]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Line " + (n + 1) + ": rank and due offset must be whole numbers");
+            }
+            if (offset < 0) {
+                throw new IllegalArgumentException("Line " + (n + 1) + ": due offset cannot be negative");
+            }
+            names.add(name);
+            rows.add(new Rule(name, rank, offset, f[3], f[4], f[5].equals("-") ? "" : f[5]));
+        }
+        if (rows.isEmpty()) throw new IllegalArgumentException("Rule file defines no priority tiers");
+
+        for (String name : names) Priority.define(name);
+        PriorityRules rules = new PriorityRules(Priority.values().length);
+        for (Rule r : rows) {
+            int t = Priority.define(r.name()).ordinal();
+            rules.defined[t] = true;
+            rules.rank[t] = r.rank();
+            rules.dueOffset[t] = r.dueOffset();
+            rules.shipType[t] = r.shipType();
+            rules.handoffLabel[t] = r.handoffLabel();
+            rules.dueNote[t] = r.dueNote();
+        }
+        return rules;
+    }
+
+    // Tiers this table doesn't list (e.g. seen only in the shared order file) sort last, keep their
+    // due day, and use their own name as the label
+    boolean covers(Priority p) {
+        return p.ordinal() < defined.length && defined[p.ordinal()];
+    }
+
+    int rank(Priority p) {
+        return covers(p) ? rank[p.ordinal()] : Integer.MAX_VALUE;
+    }
+
+    int dueDay(Priority p, int receivedDay) {
+        return covers(p) ? receivedDay + dueOffset[p.ordinal()] : receivedDay;
+    }
+
+    String shipType(Priority p) {
+        return covers(p) ? shipType[p.ordinal()] : "Standard";
+    }
+
+    String handoffLabel(Priority p) {
+        return covers(p) ? handoffLabel[p.ordinal()] : p.name();
+    }
+
+    String dueNote(Priority p) {
+        return covers(p) ? dueNote[p.ordinal()] : "";
+    }
+
+    // One-line summary for the GUI banner / console
+    String describe() {
+        StringBuilder sb = new StringBuilder();
+        for (Priority p : Priority.values()) {
+            if (!covers(p)) continue;
+            if (sb.length() > 0) sb.append("; ");
+            int offset = dueOffset[p.ordinal()];
+            sb.append(p.name()).append(offset == 0 ? " due today" : " due in " + offset + " day(s)")
+                    .append(" (").append(shipType[p.ordinal()]).append(")");
+        }
+        return sb.toString();
     }
 }
 
 class Order {
     private final String orderId;     // non-PHI identifier to follow HIPAA guidelines
-    private Priority priority;
-    private int receivedDay;
-    private int dueDay;
-    private String notes;
+    private final Priority priority;
+    private final int receivedDay;
+    private final int dueDay;
+    private final String notes;
 
     Order(String orderId, Priority priority, int receivedDay, String notes) {
         this.orderId = orderId;
@@ -43,15 +252,18 @@ class Order {
         this.notes = (notes == null) ? "" : notes.trim();
     }
 
+    // Rebuild an order exactly as it was stored (shared order file, re-triage)
+    Order(String orderId, Priority priority, int receivedDay, int dueDay, String notes) {
+        this.orderId = orderId;
+        this.priority = priority;
+        this.receivedDay = receivedDay;
+        this.dueDay = dueDay;
+        this.notes = (notes == null) ? "" : notes;
+    }
+
     private int computeDueDay(Priority p, int receivedDay) {
-        // Your current rules:
-        // STAT -> same day
-        // URGENT -> same day (overnight)
-        // ROUTINE -> +2 days
-        return switch (p) {
-            case STAT, URGENT -> receivedDay;
-            case ROUTINE -> receivedDay + 2;
-        };
+        // Due day = received day + the tier's offset from the rule table
+        return PriorityRules.current().dueDay(p, receivedDay);
     }
 
 // --- getters ---
@@ -62,17 +274,31 @@ class Order {
     String getNotes() { return notes; }
 
     // --- update behavior (encapsulation) ---
-    void update(Priority newPriority, String newNotes, int currentDay) {
+    // Returns the re-triaged order; this one is left as-is so older snapshots never change
+    Order update(Priority newPriority, String newNotes, int currentDay) {
         // Treat update as "this was re-triaged today"
-        this.receivedDay = currentDay;
-        this.priority = newPriority;
-        this.dueDay = computeDueDay(newPriority, currentDay);
-
+        String updatedNotes = notes;
         if (newNotes != null) {
             String trimmed = newNotes.trim();
             // If user leaves notes blank during update, keep previous notes
-            if (!trimmed.isEmpty()) this.notes = trimmed;
+            if (!trimmed.isEmpty()) updatedNotes = trimmed;
         }
+        return new Order(orderId, newPriority, currentDay, computeDueDay(newPriority, currentDay), updatedNotes);
+    }
+
+    // Same order with its due day recomputed under the given rules (this one if nothing changes)
+    Order reevaluate(PriorityRules rules) {
+        if (!rules.covers(priority)) return this;
+        int newDueDay = rules.dueDay(priority, receivedDay);
+        return (newDueDay == dueDay) ? this : new Order(orderId, priority, receivedDay, newDueDay, notes);
+    }
+
+    boolean sameState(Order other) {
+        return orderId.equals(other.orderId)
+                && priority == other.priority
+                && receivedDay == other.receivedDay
+                && dueDay == other.dueDay
+                && notes.equals(other.notes);
     }
 
     String getStatus(int currentDay) {
@@ -90,31 +316,276 @@ class Order {
     }
 }
 
-class OrderManager {
-    private final List<Order> orders = new ArrayList<>();
+// Fixed-size order records in a memory-mapped file, shared by every front-end on this machine
+class SharedOrderStore {
+    static final String DEFAULT_FILE = "pharmacy_orders.dat";
+
+    private static final int MAGIC = 0x50574831; // "PWH1"
+    private static final int CAPACITY = 4096;
+
+    // Header: magic | capacity | record count | change sequence number | rules sequence number
+    private static final int MAGIC_POS = 0;
+    private static final int CAPACITY_POS = 4;
+    private static final int COUNT_POS = 8;
+    private static final int SEQUENCE_POS = 16;
+    private static final int RULES_SEQUENCE_POS = 24;
+    private static final int HEADER_BYTES = 32;
+
+    // Record: order ID | priority | received day | due day | notes (text fields are length-prefixed UTF-8)
+    static final int ID_BYTES = 32;
+    static final int PRIORITY_BYTES = 16;
+    static final int NOTES_BYTES = 200;
+    private static final int ID_POS = 0;
+    private static final int PRIORITY_POS = ID_POS + 2 + ID_BYTES;
+    private static final int RECEIVED_POS = PRIORITY_POS + 2 + PRIORITY_BYTES;
+    private static final int DUE_POS = RECEIVED_POS + 4;
+    private static final int NOTES_POS = DUE_POS + 4;
+    private static final int RECORD_BYTES = NOTES_POS + 2 + NOTES_BYTES;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer region;
+
+    private SharedOrderStore(FileChannel channel, MappedByteBuffer region) {
+        this.channel = channel;
+        this.region = region;
+    }
 
-    Order findOrder(String orderId) {
-        String key = orderId.trim();
-        for (Order o : orders) {
-            if (o.getOrderId().equalsIgnoreCase(key)) return o;
+    static SharedOrderStore open(String filename) throws IOException {
+        FileChannel channel = FileChannel.open(Path.of(filename),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer region;
+            // Only one process may format a brand-new file
+            try (FileLock lock = channel.lock()) {
+                boolean fresh = channel.size() == 0;
+                region = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                        HEADER_BYTES + (long) CAPACITY * RECORD_BYTES);
+                if (fresh) {
+                    region.putInt(MAGIC_POS, MAGIC);
+                    region.putInt(CAPACITY_POS, CAPACITY);
+                    region.putInt(COUNT_POS, 0);
+                    region.putLong(SEQUENCE_POS, 0);
+                    region.putLong(RULES_SEQUENCE_POS, 0);
+                } else if (region.getInt(MAGIC_POS) != MAGIC || region.getInt(CAPACITY_POS) != CAPACITY) {
+                    throw new IOException(filename + " is not a pharmacy order file");
+                } else {
+                    checkCount(region.getInt(COUNT_POS));
+                }
+            }
+            return new SharedOrderStore(channel, region);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
         }
-        return null;
     }
 
-    // Exception: Add if new, otherwise update existing record
-    boolean addOrUpdate(String orderId, Priority priority, String notes, int currentDay) {
-        Order existing = findOrder(orderId);
-        if (existing == null) {
-            orders.add(new Order(orderId, priority, currentDay, notes));
-            return false; // false = it was added (not updated)
+    // Readers take a shared lock, writers an exclusive one (locks are between processes)
+    FileLock lock(boolean shared) throws IOException {
+        return channel.lock(0, Long.MAX_VALUE, shared);
+    }
+
+    // Bumped on every write; unchanged means a reader's copy is still current
+    long sequence() {
+        return region.getLong(SEQUENCE_POS);
+    }
+
+    // Bumped when a front-end applies new priority rules; the other side then reloads the rule file
+    long rulesSequence() {
+        return region.getLong(RULES_SEQUENCE_POS);
+    }
+
+    long bumpRulesSequence() {
+        long next = rulesSequence() + 1;
+        region.putLong(RULES_SEQUENCE_POS, next);
+        return next;
+    }
+
+    List<Order> readAll() throws IOException {
+        int count = region.getInt(COUNT_POS);
+        checkCount(count);
+        List<Order> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int base = HEADER_BYTES + i * RECORD_BYTES;
+            result.add(new Order(
+                    readText(base + ID_POS),
+                    Priority.define(readText(base + PRIORITY_POS)), // may be a tier only the other side has loaded
+                    region.getInt(base + RECEIVED_POS),
+                    region.getInt(base + DUE_POS),
+                    readText(base + NOTES_POS)
+            ));
+        }
+        return result;
+    }
+
+    // A damaged header must not send readers past the end of the region
+    private static void checkCount(int count) throws IOException {
+        if (count < 0 || count > CAPACITY) {
+            throw new IOException("Shared order file is damaged: record count " + count);
+        }
+    }
+
+    // Check before the caller changes its own list, so a rejected write leaves both sides unchanged
+    void checkWritable(int index, Order o) {
+        if (index >= CAPACITY) {
+            throw new IllegalStateException("Shared order file is full (" + CAPACITY + " orders).");
+        }
+        if (utf8(o.getOrderId()).length > ID_BYTES) {
+            throw new IllegalArgumentException("Order ID is too long (max " + ID_BYTES + " bytes).");
+        }
+        if (utf8(o.getPriority().name()).length > PRIORITY_BYTES) {
+            throw new IllegalArgumentException("Priority name is too long (max " + PRIORITY_BYTES + " bytes).");
+        }
+        if (utf8(o.getNotes()).length > NOTES_BYTES) {
+            throw new IllegalArgumentException("Notes are too long (max " + NOTES_BYTES + " bytes).");
+        }
+    }
+
+    void write(int index, Order o) {
+        checkWritable(index, o);
+        int base = HEADER_BYTES + index * RECORD_BYTES;
+        writeText(base + ID_POS, o.getOrderId());
+        writeText(base + PRIORITY_POS, o.getPriority().name());
+        region.putInt(base + RECEIVED_POS, o.getReceivedDay());
+        region.putInt(base + DUE_POS, o.getDueDay());
+        writeText(base + NOTES_POS, o.getNotes());
+    }
+
+    // Publish the new record count and tell readers something changed
+    long commit(int count) {
+        long next = sequence() + 1;
+        region.putInt(COUNT_POS, count);
+        region.putLong(SEQUENCE_POS, next);
+        return next;
+    }
+
+    private String readText(int pos) {
+        byte[] bytes = new byte[region.getShort(pos)];
+        region.get(pos + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Caller has already checked the length (checkWritable), so the text is stored exactly
+    private void writeText(int pos, String text) {
+        byte[] bytes = utf8(text);
+        region.putShort(pos, (short) bytes.length);
+        region.put(pos + 2, bytes);
+    }
+
+    private static byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
+
+// Immutable list that shares structure between versions: set/append copy one 32-way trie path
+final class PersistentVector<T> implements Iterable<T> {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    private static final PersistentVector<?> EMPTY = new PersistentVector<>(0, 0, new Object[WIDTH]);
+
+    private final int size;
+    private final int shift; // BITS * (trie depth - 1)
+    private final Object[] root;
+
+    private PersistentVector(int size, int shift, Object[] root) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> PersistentVector<T> empty() {
+        return (PersistentVector<T>) EMPTY;
+    }
+
+    int size() { return size; }
+
+    @SuppressWarnings("unchecked")
+    T get(int i) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException(i);
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(i >>> level) & MASK];
+        }
+        return (T) node[i & MASK];
+    }
+
+    PersistentVector<T> set(int i, T value) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException(i);
+        return new PersistentVector<>(size, shift, copyPath(root, shift, i, value));
+    }
+
+    PersistentVector<T> append(T value) {
+        // Trie is full: grow one level, the old root becomes the first child
+        if (size == 1 << (shift + BITS)) {
+            Object[] taller = new Object[WIDTH];
+            taller[0] = root;
+            return new PersistentVector<>(size + 1, shift + BITS, copyPath(taller, shift + BITS, size, value));
+        }
+        return new PersistentVector<>(size + 1, shift, copyPath(root, shift, size, value));
+    }
+
+    private static Object[] copyPath(Object[] node, int level, int i, Object value) {
+        Object[] copy = (node == null) ? new Object[WIDTH] : node.clone();
+        if (level == 0) {
+            copy[i & MASK] = value;
         } else {
-            existing.update(priority, notes, currentDay);
-            return true;  // true = it was updated
+            int child = (i >>> level) & MASK;
+            copy[child] = copyPath((Object[]) copy[child], level - BITS, i, value);
+        }
+        return copy;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() { return next < size; }
+
+            @Override
+            public T next() {
+                if (next >= size) throw new NoSuchElementException();
+                return get(next++);
+            }
+        };
+    }
+}
+
+// One version of the order book; never changes, so reports can read it while edits continue
+class OrderSnapshot {
+    private final long version;
+    private final int day;           // Current Day when this version was made
+    private final PersistentVector<Order> orders;
+
+    OrderSnapshot(long version, int day, PersistentVector<Order> orders) {
+        this.version = version;
+        this.day = day;
+        this.orders = orders;
+    }
+
+    long getVersion() { return version; }
+    int getDay() { return day; }
+    PersistentVector<Order> getOrders() { return orders; }
+    int size() { return orders.size(); }
+
+    int indexOf(String orderId) {
+        String key = orderId.trim();
+        for (int i = 0; i < orders.size(); i++) {
+            if (orders.get(i).getOrderId().equalsIgnoreCase(key)) return i;
         }
+        return -1;
+    }
+
+    Order findOrder(String orderId) {
+        int i = indexOf(orderId);
+        return (i < 0) ? null : orders.get(i);
     }
 
     List<Order> getAllSorted() {
-        List<Order> copy = new ArrayList<>(orders);
+        List<Order> copy = new ArrayList<>(orders.size());
+        for (Order o : orders) copy.add(o);
         copy.sort(Comparator
                 .comparingInt(Order::getDueDay)
                 .thenComparingInt(o -> o.getPriority().rank())
@@ -148,17 +619,272 @@ class OrderManager {
     }
 }
 
+class OrderManager {
+    private static final int MAX_VERSIONS = 1000; // retained for "as of Day N" (this process only)
+    private static final int MAX_UNDO = 50;
+
+    // A re-triage that can be undone: the slot, and the order before and after
+    private record Retriage(int index, Order before, Order after) {}
+
+    private final SharedOrderStore store; // null = orders live only in this process
+    private final String sharedProblem;   // why the shared file couldn't be used (null = no problem)
+    private volatile long seenSequence = -1;
+    private volatile long seenRulesSequence;
+
+    // Readers grab `current` without locking; writers are serialized on this manager
+    private volatile OrderSnapshot current = new OrderSnapshot(0, 0, PersistentVector.empty());
+    private final Deque<OrderSnapshot> history = new ArrayDeque<>();
+    private final Deque<Retriage> retriages = new ArrayDeque<>();
+
+    OrderManager() {
+        this(null, null);
+    }
+
+    OrderManager(SharedOrderStore store) {
+        this(store, null);
+    }
+
+    private OrderManager(SharedOrderStore store, String sharedProblem) {
+        this.store = store;
+        this.sharedProblem = sharedProblem;
+        // Rules applied before we started are already in the rule file this process loads at startup
+        this.seenRulesSequence = (store == null) ? 0 : store.rulesSequence();
+        history.addLast(current);
+    }
+
+    // Attach to the shared order file, or fall back to a private in-memory queue (see sharedProblem())
+    static OrderManager attachShared(String filename) {
+        try {
+            return new OrderManager(SharedOrderStore.open(filename));
+        } catch (IOException e) {
+            // File-system errors carry only the file name as their message, so keep the error type too
+            String reason = (e instanceof FileSystemException)
+                    ? e.getClass().getSimpleName() + ": " + e.getMessage()
+                    : e.getMessage();
+            return new OrderManager(null, reason);
+        }
+    }
+
+    boolean isShared() {
+        return store != null;
+    }
+
+    String sharedProblem() {
+        return sharedProblem;
+    }
+
+    // Latest version, O(1); keep using the same snapshot for a consistent multi-part read
+    OrderSnapshot snapshot() {
+        refresh();
+        return current;
+    }
+
+    // The queue as this process saw it at the end of the given day (null = no retained version that old).
+    // History is per process: edits from the other front-end arrive as one version when this process
+    // next refreshes, so this is not the full history of the shared queue.
+    synchronized OrderSnapshot snapshotAt(int day) {
+        refresh();
+        Iterator<OrderSnapshot> newestFirst = history.descendingIterator();
+        while (newestFirst.hasNext()) {
+            OrderSnapshot s = newestFirst.next();
+            if (s.getDay() <= day) return s;
+        }
+        return null;
+    }
+
+    // Pick up changes from the other front-end; the region is only read when a sequence moved
+    private void refresh() {
+        if (store == null || !storeChanged()) return;
+        synchronized (this) {
+            if (!storeChanged()) return;
+            try (FileLock lock = store.lock(true)) {
+                syncFromStore();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private boolean storeChanged() {
+        return store.sequence() != seenSequence || store.rulesSequence() != seenRulesSequence;
+    }
+
+    // Rules first (sorting and new due days depend on them), then orders
+    private void syncFromStore() throws IOException {
+        if (store.rulesSequence() != seenRulesSequence) {
+            seenRulesSequence = store.rulesSequence();
+            try {
+                PriorityRules.install(PriorityRules.load(PriorityRules.DEFAULT_FILE));
+            } catch (IOException | IllegalArgumentException e) {
+                // The other side loaded this file fine, so it was edited again since; keep our rules
+                System.err.println("Could not reload " + PriorityRules.DEFAULT_FILE + ": " + e.getMessage());
+            }
+        }
+        if (store.sequence() != seenSequence) reload();
+    }
+
+    // Apply the shared records as one new version, keeping every order that didn't change
+    private void reload() throws IOException {
+        seenSequence = store.sequence();
+        List<Order> stored = store.readAll();
+        PersistentVector<Order> orders = current.getOrders();
+        PersistentVector<Order> next = (stored.size() < orders.size()) ? PersistentVector.empty() : orders;
+        int day = current.getDay();
+
+        for (int i = 0; i < stored.size(); i++) {
+            Order o = stored.get(i);
+            if (i < next.size() && next.get(i).sameState(o)) continue;
+            next = (i < next.size()) ? next.set(i, o) : next.append(o);
+            day = Math.max(day, o.getReceivedDay());
+
+            // The other front-end changed this order, so our undo steps for it no longer apply
+            int slot = i;
+            retriages.removeIf(r -> r.index() == slot);
+        }
+        if (next != orders) install(next, day);
+    }
+
+    // Exclusive file lock with the latest shared state loaded (null when not shared)
+    private FileLock lockForWrite() throws IOException {
+        if (store == null) return null;
+        FileLock lock = store.lock(false);
+        try {
+            syncFromStore();
+        } catch (IOException | RuntimeException e) {
+            lock.release();
+            throw e;
+        }
+        return lock;
+    }
+
+    // Mirror the changed slots to the shared file, then make the new version current
+    private void publish(PersistentVector<Order> next, int day, int... changed) {
+        if (store != null) {
+            for (int i : changed) store.checkWritable(i, next.get(i));
+            for (int i : changed) store.write(i, next.get(i));
+            seenSequence = store.commit(next.size());
+        }
+        install(next, day);
+    }
+
+    private void install(PersistentVector<Order> next, int day) {
+        // Front-ends keep their own day counters; never stamp a version earlier than the one before it,
+        // so snapshotAt can walk the history newest-first
+        current = new OrderSnapshot(current.getVersion() + 1, Math.max(current.getDay(), day), next);
+        history.addLast(current);
+        if (history.size() > MAX_VERSIONS) history.removeFirst();
+    }
+
+    Order findOrder(String orderId) {
+        return snapshot().findOrder(orderId);
+    }
+
+    // Exception: Add if new, otherwise update existing record
+    synchronized boolean addOrUpdate(String orderId, Priority priority, String notes, int currentDay) {
+        try (FileLock lock = lockForWrite()) {
+            PersistentVector<Order> orders = current.getOrders();
+            int i = current.indexOf(orderId);
+            if (i < 0) {
+                publish(orders.append(new Order(orderId.trim(), priority, currentDay, notes)), currentDay, orders.size());
+                return false; // false = it was added (not updated)
+            }
+
+            Order before = orders.get(i);
+            Order after = before.update(priority, notes, currentDay);
+            publish(orders.set(i, after), currentDay, i);
+            retriages.push(new Retriage(i, before, after));
+            if (retriages.size() > MAX_UNDO) retriages.removeLast();
+            return true;  // true = it was updated
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Explicit update: only touches an existing order (false = not found)
+    boolean update(String orderId, Priority priority, String notes, int currentDay) {
+        if (findOrder(orderId) == null) return false;
+        addOrUpdate(orderId, priority, notes, currentDay);
+        return true;
+    }
+
+    // Put back the order as it was before the latest re-triage (null = nothing to undo)
+    synchronized Order undoLastRetriage(int currentDay) {
+        try (FileLock lock = lockForWrite()) {
+            Retriage last = retriages.peek();
+            if (last == null) return null;
+
+            PersistentVector<Order> orders = current.getOrders();
+            if (!orders.get(last.index()).sameState(last.after())) {
+                throw new IllegalStateException("Order " + last.after().getOrderId()
+                        + " was changed again after that re-triage.");
+            }
+            publish(orders.set(last.index(), last.before()), currentDay, last.index());
+            retriages.pop(); // only once the undo is saved
+            return last.before();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Install new rules, re-evaluate every order under them, and have the other front-end reload the
+    // rule file too (returns how many orders moved)
+    synchronized int applyRules(PriorityRules rules, int currentDay) {
+        try (FileLock lock = lockForWrite()) {
+            PriorityRules.install(rules);
+            int moved = reevaluateDueDays(rules, currentDay);
+            if (store != null) seenRulesSequence = store.bumpRulesSequence();
+            return moved;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Bulk pass: recompute every order's due day as one new version (caller holds the write lock)
+    private int reevaluateDueDays(PriorityRules rules, int currentDay) {
+        PersistentVector<Order> orders = current.getOrders();
+        PersistentVector<Order> next = orders;
+        int[] changed = new int[orders.size()];
+        int count = 0;
+
+        for (int i = 0; i < orders.size(); i++) {
+            Order o = orders.get(i);
+            Order updated = o.reevaluate(rules);
+            if (updated != o) {
+                next = next.set(i, updated);
+                changed[count++] = i;
+            }
+        }
+        if (count > 0) {
+            publish(next, currentDay, Arrays.copyOf(changed, count));
+            // Undo would put back due days from the old rules
+            retriages.clear();
+        }
+        return count;
+    }
+
+    List<Order> getAllSorted() {
+        return snapshot().getAllSorted();
+    }
+
+    List<Order> dueToday(int currentDay) {
+        return snapshot().dueToday(currentDay);
+    }
+
+    List<Order> overdue(int currentDay) {
+        return snapshot().overdue(currentDay);
+    }
+}
+
 class ScriptGenerator {
 
     String handoffScript(Order o) {
-        return switch (o.getPriority()) {
-            case STAT -> "STAT — DO FIRST: " + o.getOrderId() + " | Due: TODAY"
-                    + (o.getNotes().isEmpty() ? "" : " | Notes: " + o.getNotes());
-            case URGENT -> "URGENT — EOD SHIP: " + o.getOrderId() + " | Due: TODAY (overnight)"
-                    + (o.getNotes().isEmpty() ? "" : " | Notes: " + o.getNotes());
-            case ROUTINE -> "ROUTINE: " + o.getOrderId() + " | Due: Day " + o.getDueDay()
-                    + (o.getNotes().isEmpty() ? "" : " | Notes: " + o.getNotes());
-        };
+        PriorityRules rules = PriorityRules.current();
+        String note = rules.dueNote(o.getPriority());
+        String due = (o.getDueDay() == o.getReceivedDay()) ? "TODAY" : "Day " + o.getDueDay();
+
+        return rules.handoffLabel(o.getPriority()) + ": " + o.getOrderId()
+                + " | Due: " + due + (note.isEmpty() ? "" : " (" + note + ")")
+                + (o.getNotes().isEmpty() ? "" : " | Notes: " + o.getNotes());
     }
 
     String compoundingScript(Order o) {
@@ -169,11 +895,7 @@ class ScriptGenerator {
     }
 
     String deliveryScript(Order o) {
-        String shipType = switch (o.getPriority()) {
-            case STAT -> "Same-day";
-            case URGENT -> "Overnight";
-            case ROUTINE -> "Standard";
-        };
+        String shipType = PriorityRules.current().shipType(o.getPriority());
 
         return "DELIVERY: " + o.getOrderId()
                 + " | Due Day: " + o.getDueDay()
@@ -186,14 +908,35 @@ public class PharmacyWorkflowHelper {
 
     public static void main(String[] args) {
         Scanner sc = new Scanner(System.in);
-        OrderManager manager = new OrderManager();
+        OrderManager manager = OrderManager.attachShared(SharedOrderStore.DEFAULT_FILE);
         ScriptGenerator scripts = new ScriptGenerator();
 
+        if (manager.isShared()) {
+            System.out.println("Using shared order file: " + SharedOrderStore.DEFAULT_FILE);
+        } else {
+            System.out.println("Shared order file unavailable (" + manager.sharedProblem()
+                    + ") — orders are kept in this session only.");
+        }
+
         int currentDay = 0;
         boolean running = true;
 
+        try {
+            PriorityRules rules = PriorityRules.loadIfPresent(PriorityRules.DEFAULT_FILE);
+            if (rules != null) {
+                System.out.println("Priority rules loaded from: " + PriorityRules.DEFAULT_FILE);
+                // Saved orders may predate edits to the rule file
+                int moved = manager.applyRules(rules, currentDay);
+                if (moved > 0) System.out.println("Due days re-evaluated — " + moved + " order(s) changed.");
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Could not load " + PriorityRules.DEFAULT_FILE + " (" + e.getMessage()
+                    + ") — using built-in rules.");
+        }
+
         // Menu display
         while (running) {
+            manager.snapshot(); // pick up orders and rules changed at the other bench (prompts list the tiers)
             System.out.println("\n=== Pharmacy Workflow Helper ===");
             System.out.println("1) Add order (or update if ID exists)");
             System.out.println("2) Update existing order (explicit)");
@@ -204,7 +947,10 @@ public class PharmacyWorkflowHelper {
             System.out.println("7) Generate scripts for an order");
             System.out.println("8) Advance day (+1)");
             System.out.println("9) Save report to file");
-            System.out.println("10) Exit");
+            System.out.println("10) View queue as this session saw it on a past day");
+            System.out.println("11) Undo last re-triage");
+            System.out.println("12) Reload priority rules");
+            System.out.println("13) Exit");
 
             System.out.print("Please select a menu option: ");
 
@@ -223,7 +969,10 @@ public class PharmacyWorkflowHelper {
                     System.out.println("Day advanced. Current Day = " + currentDay);
                 }
                 case "9" -> saveReportFlow(manager, currentDay);
-                case "10" -> {
+                case "10" -> viewAsOfDayFlow(sc, manager);
+                case "11" -> undoRetriageFlow(manager, currentDay);
+                case "12" -> reloadRulesFlow(manager, currentDay);
+                case "13" -> {
                     running = false;
                     System.out.println("Goodbye.");
                 }
@@ -244,17 +993,23 @@ public class PharmacyWorkflowHelper {
 
         Priority priority;
         try {
-            System.out.print("Enter priority (STAT / URGENT / ROUTINE): ");
+            System.out.print("Enter priority (" + Priority.choices() + "): ");
             priority = Priority.fromString(sc.nextLine());
         } catch (Exception e) {
-            System.out.println("Invalid priority. Must be STAT, URGENT, or ROUTINE.");
+            System.out.println("Invalid priority. Must be one of: " + Priority.choices() + ".");
             return;
         }
 
         System.out.print("Notes (optional): ");
         String notes = sc.nextLine();
 
-        boolean wasUpdated = manager.addOrUpdate(orderId, priority, notes, currentDay);
+        boolean wasUpdated;
+        try {
+            wasUpdated = manager.addOrUpdate(orderId, priority, notes, currentDay);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            System.out.println("Order not saved: " + e.getMessage());
+            return;
+        }
         if (wasUpdated) {
             System.out.println("Order existed — UPDATED (priority/notes/due day refreshed).");
         } else {
@@ -320,9 +1075,11 @@ public class PharmacyWorkflowHelper {
     private static void saveReportFlow(OrderManager manager, int currentDay) {
         String filename = "report_day" + currentDay + ".txt";
 
-        List<Order> all = manager.getAllSorted();
-        List<Order> dueToday = manager.dueToday(currentDay);
-        List<Order> overdue = manager.overdue(currentDay);
+        // One version for the whole report, so the totals and the list always agree
+        OrderSnapshot snap = manager.snapshot();
+        List<Order> all = snap.getAllSorted();
+        List<Order> dueToday = snap.dueToday(currentDay);
+        List<Order> overdue = snap.overdue(currentDay);
 
         StringBuilder sb = new StringBuilder();
         sb.append("=== Pharmacy Workflow Helper Report ===\n");
@@ -351,6 +1108,66 @@ public class PharmacyWorkflowHelper {
 
     }
 
+    private static void viewAsOfDayFlow(Scanner sc, OrderManager manager) {
+        System.out.print("Show the queue as this session saw it on which day? ");
+        int day;
+        try {
+            day = Integer.parseInt(sc.nextLine().trim());
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid day.");
+            return;
+        }
+
+        OrderSnapshot snap = manager.snapshotAt(day);
+        if (snap == null) {
+            System.out.println("No saved version that old.");
+            return;
+        }
+
+        List<Order> list = snap.getAllSorted();
+        System.out.println("\n--- QUEUE AS SEEN BY THIS SESSION ON DAY " + day
+                + " (version " + snap.getVersion() + ") ---");
+        if (list.isEmpty()) {
+            System.out.println("No orders.");
+            return;
+        }
+        for (Order o : list) {
+            System.out.println(o.toDisplayString(day));
+        }
+    }
+
+    private static void undoRetriageFlow(OrderManager manager, int currentDay) {
+        Order restored;
+        try {
+            restored = manager.undoLastRetriage(currentDay);
+        } catch (IllegalStateException e) {
+            System.out.println("Cannot undo: " + e.getMessage());
+            return;
+        }
+
+        if (restored == null) {
+            System.out.println("No re-triage to undo.");
+            return;
+        }
+        System.out.println("Re-triage UNDONE:");
+        System.out.println(restored.toDisplayString(currentDay));
+    }
+
+    private static void reloadRulesFlow(OrderManager manager, int currentDay) {
+        PriorityRules rules;
+        try {
+            rules = PriorityRules.load(PriorityRules.DEFAULT_FILE);
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Rules not changed: " + e.getMessage());
+            return;
+        }
+
+        // Also makes the other front-end reload the rule file
+        int moved = manager.applyRules(rules, currentDay);
+        System.out.println("Rules reloaded: " + PriorityRules.current().describe());
+        System.out.println("Due days re-evaluated — " + moved + " order(s) changed.");
+    }
+
     private static void updateOrderFlow(Scanner sc, OrderManager manager, int currentDay) {
         System.out.print("Enter existing order ID to update: ");
         String orderId = sc.nextLine().trim();
@@ -363,7 +1180,7 @@ public class PharmacyWorkflowHelper {
 
         Priority newPriority;
         try {
-            System.out.print("Enter NEW priority (STAT / URGENT / ROUTINE): ");
+            System.out.print("Enter NEW priority (" + Priority.choices() + "): ");
             newPriority = Priority.fromString(sc.nextLine());
         } catch (Exception e) {
             System.out.println("Invalid priority.");
@@ -374,10 +1191,15 @@ public class PharmacyWorkflowHelper {
         String newNotes = sc.nextLine();
 
         // Update using the same “re-triaged today” behavior
-        existing.update(newPriority, newNotes, currentDay);
+        try {
+            manager.update(orderId, newPriority, newNotes, currentDay);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            System.out.println("Order not saved: " + e.getMessage());
+            return;
+        }
 
         System.out.println("Order UPDATED:");
-        System.out.println(existing.toDisplayString(currentDay));
+        System.out.println(manager.findOrder(orderId).toDisplayString(currentDay));
     }
 
     private static void viewWorkQueueFlow(OrderManager manager, int currentDay) {